@@ -0,0 +1,1894 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.InputMismatchException;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.Scanner; // Still needed for Keypad class if not refactoring it out completely
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Main class for the GUI ATM machine simulation.
+
+ */
+public class AtmGui extends JFrame {
+
+    public static final int WINDOW_WIDTH = 800;
+    public static final int WINDOW_HEIGHT = 600;
+
+    // --- Diagnostics settings (overridable with -D system properties) ---
+    private static final long STALL_THRESHOLD_MILLIS = Math.max(1L, Long.getLong("atm.edt.stallThresholdMs", 500L));
+    private static final int TRACE_CAPACITY = Math.max(1, Integer.getInteger("atm.trace.capacity", 1024));
+    private static final String TRACE_FILE = System.getProperty("atm.trace.file");
+    private static final String DEFAULT_TRACE_FILE = "atm-trace.log";
+    private static final String SESSION_FILE = System.getProperty("atm.session.record");
+
+    private final EdtWatchdog edtWatchdog;
+    private final InteractionTraceRecorder traceRecorder;
+
+    /**
+     * Constructor for the AtmGui frame.
+     */
+    public AtmGui(EdtWatchdog edtWatchdog, InteractionTraceRecorder traceRecorder, SessionRecorder sessionRecorder) {
+        this.edtWatchdog = edtWatchdog;
+        this.traceRecorder = traceRecorder;
+
+        setTitle("GUI ATM Machine");
+        setSize(WINDOW_WIDTH, WINDOW_HEIGHT);
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        setLocationRelativeTo(null); // Center the window
+        setResizable(false); // Fixed size for simplicity
+
+        // Create and add the ATM panel
+        AtmPanel atmPanel = new AtmPanel(traceRecorder);
+        atmPanel.setSessionRecorder(sessionRecorder);
+        add(atmPanel);
+
+        // Ctrl+Shift+D dumps the interaction trace and EDT stall reports
+        getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+                .put(KeyStroke.getKeyStroke("ctrl shift D"), "dumpDiagnostics");
+        getRootPane().getActionMap().put("dumpDiagnostics", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                // Snapshot here, but write off the EDT so the dump does not show up as a stall
+                InteractionTraceRecorder traceSnapshot = traceRecorder.copy();
+                Path file = Paths.get(TRACE_FILE != null ? TRACE_FILE : DEFAULT_TRACE_FILE);
+                new Thread(() -> dumpDiagnostics(file, traceSnapshot), "Diagnostics-Dump").start();
+            }
+        });
+
+        setVisible(true);
+    }
+
+    /**
+     * Writes an interaction trace and the EDT stall reports to a file. Blocks on I/O, so call it off the EDT.
+     * @param file The file to write.
+     * @param trace The trace to write, usually a snapshot of the live recorder.
+     */
+    public void dumpDiagnostics(Path file, InteractionTraceRecorder trace) {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            out.println("# ATM diagnostics dumped at " + Instant.now());
+            trace.dumpTo(out);
+            edtWatchdog.dumpTo(out);
+            System.err.println("Diagnostics written to " + file.toAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("Error writing diagnostics to " + file + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Main method to start the GUI ATM
+     */
+    public static void main(String[] args) {
+        // Start watching before the first window is built, since image loading runs on the EDT
+        EdtWatchdog edtWatchdog = new EdtWatchdog(STALL_THRESHOLD_MILLIS);
+        edtWatchdog.start();
+        InteractionTraceRecorder traceRecorder = new InteractionTraceRecorder(TRACE_CAPACITY);
+        SessionRecorder sessionRecorder = SESSION_FILE != null ? new SessionRecorder() : null;
+        if (sessionRecorder != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> sessionRecorder.saveTo(Paths.get(SESSION_FILE))));
+        }
+
+        SwingUtilities.invokeLater(() -> {
+            AtmGui gui = new AtmGui(edtWatchdog, traceRecorder, sessionRecorder);
+            if (TRACE_FILE != null) {
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> gui.dumpDiagnostics(Paths.get(TRACE_FILE), traceRecorder)));
+            }
+        });
+    }
+}
+
+/**
+ * Watches the Event Dispatch Thread (EDT) for stalls.
+ * A daemon thread posts a heartbeat onto the EDT; if the heartbeat has not run within the
+ * threshold, the EDT's current stack is captured so the blocking call can be identified.
+ */
+class EdtWatchdog {
+    private static final int MAX_REPORTS = 50;
+
+    private final long thresholdMillis;
+    private final long sampleIntervalMillis;
+    private final Deque<String> stallReports = new ArrayDeque<>(); // Most recent stalls, guarded by this
+    private volatile Thread edtThread;
+    private volatile boolean heartbeatPending;
+    private volatile long heartbeatPostedNanos;
+    private long reportedHeartbeatNanos; // Heartbeat whose stall was already reported (watchdog thread only)
+    private Thread watchdogThread;
+
+    public EdtWatchdog(long thresholdMillis) {
+        if (thresholdMillis < 1) {
+            throw new IllegalArgumentException("Stall threshold must be at least 1 ms, was " + thresholdMillis);
+        }
+        this.thresholdMillis = thresholdMillis;
+        this.sampleIntervalMillis = Math.max(10, thresholdMillis / 4);
+    }
+
+    public synchronized void start() {
+        if (watchdogThread != null) {
+            return;
+        }
+        watchdogThread = new Thread(this::run, "EDT-Watchdog");
+        watchdogThread.setDaemon(true);
+        watchdogThread.start();
+    }
+
+    public synchronized void stop() {
+        if (watchdogThread != null) {
+            watchdogThread.interrupt();
+            watchdogThread = null;
+        }
+    }
+
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                sample();
+                Thread.sleep(sampleIntervalMillis);
+            }
+        } catch (InterruptedException e) {
+            // Stopped
+        }
+    }
+
+    /**
+     * Posts a heartbeat if none is outstanding, otherwise checks how long the current one has waited.
+     */
+    private void sample() {
+        long now = System.nanoTime();
+        if (!heartbeatPending) {
+            long postedNanos = now;
+            heartbeatPostedNanos = postedNanos;
+            heartbeatPending = true;
+            EventQueue.invokeLater(() -> {
+                edtThread = Thread.currentThread(); // The EDT is replaced after an uncaught exception
+                heartbeatPending = false;
+                long delayMillis = (System.nanoTime() - postedNanos) / 1_000_000;
+                if (delayMillis >= thresholdMillis) {
+                    addReport("EDT resumed after " + delayMillis + " ms");
+                }
+            });
+            return;
+        }
+
+        long postedNanos = heartbeatPostedNanos;
+        long blockedMillis = (now - postedNanos) / 1_000_000;
+        if (blockedMillis < thresholdMillis || postedNanos == reportedHeartbeatNanos) {
+            return;
+        }
+        reportedHeartbeatNanos = postedNanos; // One stack per stall
+
+        StringBuilder report = new StringBuilder("EDT blocked for ").append(blockedMillis).append(" ms");
+        Thread edt = findEdt();
+        if (edt != null) {
+            report.append(" in ").append(edt.getName());
+            for (StackTraceElement frame : edt.getStackTrace()) {
+                report.append("\n\tat ").append(frame);
+            }
+        }
+        addReport(report.toString());
+    }
+
+    private Thread findEdt() {
+        Thread edt = edtThread;
+        if (edt != null && edt.isAlive()) {
+            return edt;
+        }
+        // Heartbeat has not run yet, e.g. the EDT stalled during start-up
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("AWT-EventQueue")) {
+                return thread;
+            }
+        }
+        return null;
+    }
+
+    private synchronized void addReport(String report) {
+        String stamped = Instant.now() + " " + report;
+        System.err.println(stamped);
+        if (stallReports.size() == MAX_REPORTS) {
+            stallReports.removeFirst();
+        }
+        stallReports.addLast(stamped);
+    }
+
+    /**
+     * Writes the most recent stall reports, oldest first.
+     * @param out The writer to dump to.
+     */
+    public synchronized void dumpTo(PrintWriter out) {
+        out.println("# EDT stalls (threshold " + thresholdMillis + " ms): " + stallReports.size());
+        for (String report : stallReports) {
+            out.println(report);
+        }
+    }
+}
+
+/**
+ * Records each handled action event and its handler duration in a fixed-size ring buffer.
+ * Slots are preallocated and only references to existing strings are stored, so recording
+ * allocates nothing and can stay enabled in production.
+ */
+class InteractionTraceRecorder {
+    private final int capacity;
+    private final long[] timestampsMillis;
+    private final long[] durationsNanos;
+    private final String[] sources;
+    private final String[] screenStates;
+    private long recordedCount; // Total events ever recorded, including overwritten ones
+
+    public InteractionTraceRecorder(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Trace capacity must be at least 1, was " + capacity);
+        }
+        this.capacity = capacity;
+        timestampsMillis = new long[capacity];
+        durationsNanos = new long[capacity];
+        sources = new String[capacity];
+        screenStates = new String[capacity];
+    }
+
+    /**
+     * Records one event, overwriting the oldest once the buffer is full.
+     * @param timestampMillis Wall-clock time the event was dispatched.
+     * @param durationNanos How long the handler ran.
+     * @param source Label of the component that fired the event.
+     * @param screenState Screen the ATM was on when the event arrived.
+     */
+    public synchronized void record(long timestampMillis, long durationNanos, String source, String screenState) {
+        int slot = (int) (recordedCount % capacity);
+        timestampsMillis[slot] = timestampMillis;
+        durationsNanos[slot] = durationNanos;
+        sources[slot] = source;
+        screenStates[slot] = screenState;
+        recordedCount++;
+    }
+
+    /**
+     * Returns a copy of the buffer, so it can be written out without holding up recording.
+     */
+    public synchronized InteractionTraceRecorder copy() {
+        InteractionTraceRecorder copy = new InteractionTraceRecorder(capacity);
+        System.arraycopy(timestampsMillis, 0, copy.timestampsMillis, 0, capacity);
+        System.arraycopy(durationsNanos, 0, copy.durationsNanos, 0, capacity);
+        System.arraycopy(sources, 0, copy.sources, 0, capacity);
+        System.arraycopy(screenStates, 0, copy.screenStates, 0, capacity);
+        copy.recordedCount = recordedCount;
+        return copy;
+    }
+
+    /**
+     * Writes the buffered events, oldest first.
+     * @param out The writer to dump to.
+     */
+    public synchronized void dumpTo(PrintWriter out) {
+        int size = (int) Math.min(recordedCount, capacity);
+        out.println("# Interaction trace: " + size + " of " + recordedCount + " events");
+        for (long i = recordedCount - size; i < recordedCount; i++) {
+            int slot = (int) (i % capacity);
+            out.println(Instant.ofEpochMilli(timestampsMillis[slot]) + " " + screenStates[slot] + " "
+                    + sources[slot] + " " + String.format("%.3f", durationsNanos[slot] / 1_000_000.0) + " ms");
+        }
+    }
+}
+
+/**
+ * Represents a bank account.
+ * Balances are guarded by the account's own monitor. Hot accounts (e.g. a merchant
+ * receiving from many payers) take credits into a striped adder without locking and
+ * fold them into the balances on the next locked read or debit.
+ */
+class BankAccount {
+    private int accountNumber;
+    private int pin;
+    private double availableBalance;
+    private double totalBalance;
+    private final boolean hot;
+    private final DoubleAdder deferredCredits = new DoubleAdder(); // Credits not yet folded into the balances
+
+    public BankAccount(int accountNumber, int pin, double availableBalance, double totalBalance) {
+        this(accountNumber, pin, availableBalance, totalBalance, false);
+    }
+
+    public BankAccount(int accountNumber, int pin, double availableBalance, double totalBalance, boolean hot) {
+        this.accountNumber = accountNumber;
+        this.pin = pin;
+        this.availableBalance = availableBalance;
+        this.totalBalance = totalBalance;
+        this.hot = hot;
+    }
+
+    public boolean validatePIN(int userPin) {
+        return userPin == pin;
+    }
+
+    public synchronized double getAvailableBalance() {
+        settleDeferredCredits();
+        return availableBalance;
+    }
+
+    public synchronized double getTotalBalance() {
+        settleDeferredCredits();
+        return totalBalance;
+    }
+
+    public void credit(double amount) {
+        if (hot) {
+            deferredCredits.add(amount); // No lock, so concurrent payers never queue on this account
+            return;
+        }
+        synchronized (this) {
+            totalBalance += amount;
+            availableBalance += amount;
+        }
+    }
+
+    public synchronized void debit(double amount) {
+        settleDeferredCredits();
+        availableBalance -= amount;
+        totalBalance -= amount;
+    }
+
+    /**
+     * Debits the amount only if it is available, checking and debiting under one lock
+     * so a concurrent transfer cannot overdraw the account in between.
+     * @return true if the account was debited.
+     */
+    public synchronized boolean tryDebit(double amount) {
+        settleDeferredCredits();
+        if (availableBalance < amount) {
+            return false;
+        }
+        availableBalance -= amount;
+        totalBalance -= amount;
+        return true;
+    }
+
+    public int getAccountNumber() {
+        return accountNumber;
+    }
+
+    public boolean isHot() {
+        return hot;
+    }
+
+    /**
+     * Folds pending striped credits into the balances. Caller must hold this account's lock.
+     */
+    private void settleDeferredCredits() {
+        double pending = deferredCredits.sumThenReset();
+        if (pending != 0) {
+            totalBalance += pending;
+            availableBalance += pending;
+        }
+    }
+}
+
+/**
+ * Outcome of a transfer between two accounts.
+ */
+enum TransferResult {
+    SUCCESS,
+    INVALID_AMOUNT,
+    SAME_ACCOUNT,
+    UNKNOWN_ACCOUNT,
+    INSUFFICIENT_FUNDS
+}
+
+/**
+ * Simulates the bank's database of accounts.
+ */
+class BankDatabase {
+    private final Map<Integer, BankAccount> accounts;
+    private final Map<Integer, List<Integer>> linkedAccounts; // Other accounts owned by the same customer
+
+    public BankDatabase() {
+        accounts = new HashMap<>();
+        accounts.put(12345, new BankAccount(12345, 1111, 1000.0, 1000.0));
+        accounts.put(12346, new BankAccount(12346, 1111, 2500.0, 2500.0)); // Savings linked to 12345
+        accounts.put(98765, new BankAccount(98765, 2222, 500.0, 500.0));
+        accounts.put(55555, new BankAccount(55555, 5555, 0.0, 0.0, true)); // Merchant account, receives many transfers
+
+        linkedAccounts = new HashMap<>();
+        linkAccounts(12345, 12346);
+    }
+
+    private void linkAccounts(int firstAccountNumber, int secondAccountNumber) {
+        linkedAccounts.computeIfAbsent(firstAccountNumber, k -> new ArrayList<>()).add(secondAccountNumber);
+        linkedAccounts.computeIfAbsent(secondAccountNumber, k -> new ArrayList<>()).add(firstAccountNumber);
+    }
+
+    public BankAccount getAccount(int accountNumber) {
+        return accounts.get(accountNumber);
+    }
+
+    public List<Integer> getLinkedAccounts(int accountNumber) {
+        return Collections.unmodifiableList(linkedAccounts.getOrDefault(accountNumber, Collections.emptyList()));
+    }
+
+    /**
+     * Moves money from one account to another atomically.
+     * Both accounts are locked in account-number order so two opposing transfers can never
+     * deadlock. A hot destination is credited through its striped adder while only the source
+     * is locked, so many payers into one account do not serialize on it.
+     */
+    public TransferResult transfer(int fromAccountNumber, int toAccountNumber, double amount) {
+        if (amount <= 0 || Double.isNaN(amount) || Double.isInfinite(amount)) {
+            return TransferResult.INVALID_AMOUNT;
+        }
+        if (fromAccountNumber == toAccountNumber) {
+            return TransferResult.SAME_ACCOUNT;
+        }
+        BankAccount source = getAccount(fromAccountNumber);
+        BankAccount destination = getAccount(toAccountNumber);
+        if (source == null || destination == null) {
+            return TransferResult.UNKNOWN_ACCOUNT;
+        }
+
+        if (destination.isHot()) {
+            synchronized (source) {
+                return moveFunds(source, destination, amount);
+            }
+        }
+
+        BankAccount first = fromAccountNumber < toAccountNumber ? source : destination;
+        BankAccount second = first == source ? destination : source;
+        synchronized (first) {
+            synchronized (second) {
+                return moveFunds(source, destination, amount);
+            }
+        }
+    }
+
+    private TransferResult moveFunds(BankAccount source, BankAccount destination, double amount) {
+        if (!source.tryDebit(amount)) {
+            return TransferResult.INSUFFICIENT_FUNDS;
+        }
+        destination.credit(amount);
+        return TransferResult.SUCCESS;
+    }
+
+    public boolean authenticateUser(int userAccountNumber, int userPin) {
+        BankAccount userAccount = getAccount(userAccountNumber);
+        if (userAccount != null) {
+            return userAccount.validatePIN(userPin);
+        }
+        return false;
+    }
+}
+
+/**
+ * Represents the ATM's cash dispenser.
+ */
+class CashDispenser {
+    private final static int INITIAL_CASH = 500;
+    private int count;
+
+    public CashDispenser() {
+        count = INITIAL_CASH;
+    }
+
+    public void dispenseCash(double amount) {
+        int billsRequired = (int) (amount / 20);
+        count -= billsRequired;
+    }
+
+    public boolean isSufficientCashAvailable(double amount) {
+        int billsRequired = (int) (amount / 20);
+        return count >= billsRequired;
+    }
+}
+
+/**
+ * Represents the ATM's deposit slot.
+ */
+class DepositSlot {
+    public boolean isEnvelopeReceived() {
+        return true; // Always true for simulation
+    }
+}
+
+/**
+ * Utility class for loading images from URLs and caching them.
+ *
+ */
+class ImageLoader {
+    private static final Map<String, Image> IMAGE_CACHE = new HashMap<>();
+    private static final Image OFFLINE_PLACEHOLDER = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+    private static volatile boolean offline;
+
+    /**
+     * When offline, every image is a blank placeholder and no network fetch is made.
+     */
+    public static void setOffline(boolean offline) {
+        ImageLoader.offline = offline;
+    }
+
+    public static Image loadImage(String imageUrl) {
+        if (offline) {
+            return OFFLINE_PLACEHOLDER;
+        }
+        if (IMAGE_CACHE.containsKey(imageUrl)) {
+            return IMAGE_CACHE.get(imageUrl);
+        }
+
+        try {
+            URL url = new URL(imageUrl);
+            ImageIcon icon = new ImageIcon(url);
+            Image image = icon.getImage();
+            if (image != null) {
+                IMAGE_CACHE.put(imageUrl, image);
+                return image;
+            }
+        } catch (Exception e) {
+            System.err.println("Error loading image from URL: " + imageUrl + " - " + e.getMessage());
+        }
+        return null;
+    }
+}
+
+/**
+ * The main JPanel for the GUI ATM, handling drawing and interaction.
+ */
+class AtmPanel extends JPanel implements ActionListener {
+
+    // --- Image URLs (Placeholders) ---
+    private static final String ATM_BACKGROUND_URL = "https://placehold.co/800x600/87CEEB/FFFFFF?text=ATM+Machine";
+    private static final String ATM_SCREEN_URL = "https://placehold.co/500x250/222222/00FF00?text=ATM+Screen";
+    private static final String BUTTON_GENERIC_URL = "https://placehold.co/100x50/CCCCCC/000000?text=Button";
+    private static final String BUTTON_WITHDRAW_URL = "https://placehold.co/100x50/ADD8E6/000000?text=Withdraw";
+    private static final String BUTTON_DEPOSIT_URL = "https://placehold.co/100x50/90EE90/000000?text=Deposit";
+    private static final String BUTTON_BALANCE_URL = "https://placehold.co/100x50/FFD700/000000?text=Balance";
+    private static final String BUTTON_TRANSFER_URL = "https://placehold.co/100x50/DDA0DD/000000?text=Transfer";
+    private static final String BUTTON_EXIT_URL = "https://placehold.co/100x50/FF6347/000000?text=Exit";
+    private static final String BUTTON_LOGIN_URL = "https://placehold.co/100x50/32CD32/FFFFFF?text=Login";
+    private static final String BUTTON_BACK_URL = "https://placehold.co/100x50/808080/FFFFFF?text=Back";
+
+
+    // --- Loaded Images ---
+    private Image atmBackground;
+    private Image atmScreenImage;
+    private Image buttonGenericImage;
+    private Image buttonWithdrawImage;
+    private Image buttonDepositImage;
+    private Image buttonBalanceImage;
+    private Image buttonTransferImage;
+    private Image buttonExitImage;
+    private Image buttonLoginImage;
+    private Image buttonBackImage;
+
+    // --- ATM Components ---
+    private final InteractionTraceRecorder traceRecorder;
+    private SessionRecorder sessionRecorder; // Null unless the session is being recorded
+    private boolean autoReturnEnabled = true; // Disabled during replay, where returns come from the log
+    private BankDatabase bankDatabase;
+    private CashDispenser cashDispenser;
+    private DepositSlot depositSlot;
+
+    // --- GUI Elements ---
+    private JTextArea screenDisplay; // For displaying messages to the user
+    private JPasswordField inputField;   // Changed from JTextField to JPasswordField
+    private JButton loginButton;
+    private JButton balanceButton;
+    private JButton withdrawButton;
+    private JButton depositButton;
+    private JButton transferButton;
+    private JButton exitButton;
+    private JButton backButton; // To go back to main menu
+
+    // --- ATM State ---
+    private BankAccount currentAccount;
+    private String currentScreenState; // "LOGIN", "MAIN_MENU", "BALANCE", "WITHDRAW", "DEPOSIT", "TRANSFER"
+    private String loginStep; // "ACCOUNT_NUMBER" or "PIN"
+    private int tempAccountNumber; // Temporarily store account number during login
+    private String transferStep; // "DESTINATION", "AMOUNT" or "COMPLETE"
+    private int tempDestinationAccount; // Temporarily store destination account during transfer
+
+    // --- Constants for states ---
+    private static final String STATE_LOGIN = "LOGIN";
+    private static final String STATE_MAIN_MENU = "MAIN_MENU";
+    private static final String STATE_BALANCE = "BALANCE";
+    private static final String STATE_WITHDRAW = "WITHDRAW";
+    private static final String STATE_DEPOSIT = "DEPOSIT";
+    private static final String STATE_TRANSFER = "TRANSFER";
+
+    private static final String LOGIN_STEP_ACCOUNT_NUMBER = "ACCOUNT_NUMBER";
+    private static final String LOGIN_STEP_PIN = "PIN";
+
+    private static final String TRANSFER_STEP_DESTINATION = "DESTINATION";
+    private static final String TRANSFER_STEP_AMOUNT = "AMOUNT";
+    private static final String TRANSFER_STEP_COMPLETE = "COMPLETE";
+
+    private static final String LINKED_ACCOUNT_BUTTON_PREFIX = "To #";
+
+
+    /**
+     * Constructor for AtmPanel. Initializes components and loads images.
+     * @param traceRecorder Recorder that receives every handled action event.
+     */
+    public AtmPanel(InteractionTraceRecorder traceRecorder) {
+        this.traceRecorder = traceRecorder;
+        setLayout(null); // Use absolute positioning for custom layout
+        setBackground(Color.DARK_GRAY);
+
+        // Initialize ATM core components
+        bankDatabase = new BankDatabase();
+        cashDispenser = new CashDispenser();
+        depositSlot = new DepositSlot();
+
+        // Load images
+        loadImages();
+
+        // Setup GUI components
+        setupGuiComponents();
+
+        // Set initial state
+        resetLoginState(); // Start at account number input
+        currentScreenState = STATE_LOGIN;
+        updateScreen();
+    }
+
+    /**
+     * Loads all necessary images using ImageLoader.
+     */
+    private void loadImages() {
+        atmBackground = ImageLoader.loadImage(ATM_BACKGROUND_URL);
+        atmScreenImage = ImageLoader.loadImage(ATM_SCREEN_URL);
+        buttonGenericImage = ImageLoader.loadImage(BUTTON_GENERIC_URL);
+        buttonWithdrawImage = ImageLoader.loadImage(BUTTON_WITHDRAW_URL);
+        buttonDepositImage = ImageLoader.loadImage(BUTTON_DEPOSIT_URL);
+        buttonBalanceImage = ImageLoader.loadImage(BUTTON_BALANCE_URL);
+        buttonTransferImage = ImageLoader.loadImage(BUTTON_TRANSFER_URL);
+        buttonExitImage = ImageLoader.loadImage(BUTTON_EXIT_URL);
+        buttonLoginImage = ImageLoader.loadImage(BUTTON_LOGIN_URL);
+        buttonBackImage = ImageLoader.loadImage(BUTTON_BACK_URL);
+    }
+
+    /**
+     * Sets up the GUI components (text areas, fields, buttons).
+     */
+    private void setupGuiComponents() {
+        // Screen Display (JTextArea within a JScrollPane for potential scrolling)
+        screenDisplay = new JTextArea();
+        screenDisplay.setBounds(150, 100, 500, 250); // Position and size for the "screen" area
+        screenDisplay.setEditable(false);
+        screenDisplay.setBackground(new Color(34, 34, 34)); // Dark background for screen
+        screenDisplay.setForeground(new Color(0, 255, 0)); // Green text for screen
+        screenDisplay.setFont(new Font("Monospaced", Font.BOLD, 16));
+        screenDisplay.setLineWrap(true);
+        screenDisplay.setWrapStyleWord(true);
+        add(screenDisplay);
+
+        // Input Field - Now JPasswordField
+        inputField = new JPasswordField(); // Changed to JPasswordField
+        inputField.setBounds(150, 360, 500, 30); // Below the screen
+        inputField.setFont(new Font("Arial", Font.PLAIN, 18));
+        inputField.setHorizontalAlignment(JTextField.CENTER);
+        inputField.addActionListener(this); // Allow pressing Enter to submit
+        add(inputField);
+
+        // Buttons
+        // Login Button
+        loginButton = new JButton("Login");
+        loginButton.setBounds(350, 400, 100, 50); // Centered below input
+        loginButton.addActionListener(this);
+        loginButton.setIcon(new ImageIcon(buttonLoginImage)); // Set image as icon
+        loginButton.setHorizontalTextPosition(SwingConstants.CENTER); // Center text over image
+        loginButton.setVerticalTextPosition(SwingConstants.CENTER);
+        add(loginButton);
+
+        // Transaction Buttons (initially hidden)
+        balanceButton = new JButton("Balance");
+        balanceButton.setBounds(50, 450, 150, 50); // Bottom left
+        balanceButton.addActionListener(this);
+        balanceButton.setIcon(new ImageIcon(buttonBalanceImage));
+        balanceButton.setHorizontalTextPosition(SwingConstants.CENTER);
+        balanceButton.setVerticalTextPosition(SwingConstants.CENTER);
+        add(balanceButton);
+
+        withdrawButton = new JButton("Withdraw");
+        withdrawButton.setBounds(220, 450, 150, 50); // Bottom center-left
+        withdrawButton.addActionListener(this);
+        withdrawButton.setIcon(new ImageIcon(buttonWithdrawImage));
+        withdrawButton.setHorizontalTextPosition(SwingConstants.CENTER);
+        withdrawButton.setVerticalTextPosition(SwingConstants.CENTER);
+        add(withdrawButton);
+
+        depositButton = new JButton("Deposit");
+        depositButton.setBounds(390, 450, 150, 50); // Bottom center-right
+        depositButton.addActionListener(this);
+        depositButton.setIcon(new ImageIcon(buttonDepositImage));
+        depositButton.setHorizontalTextPosition(SwingConstants.CENTER);
+        depositButton.setVerticalTextPosition(SwingConstants.CENTER);
+        add(depositButton);
+
+        transferButton = new JButton("Transfer");
+        transferButton.setBounds(300, 400, 200, 40); // Above the transaction row
+        transferButton.addActionListener(this);
+        transferButton.setIcon(new ImageIcon(buttonTransferImage));
+        transferButton.setHorizontalTextPosition(SwingConstants.CENTER);
+        transferButton.setVerticalTextPosition(SwingConstants.CENTER);
+        add(transferButton);
+
+        exitButton = new JButton("Exit");
+        exitButton.setBounds(560, 450, 150, 50); // Bottom right
+        exitButton.addActionListener(this);
+        exitButton.setIcon(new ImageIcon(buttonExitImage));
+        exitButton.setHorizontalTextPosition(SwingConstants.CENTER);
+        exitButton.setVerticalTextPosition(SwingConstants.CENTER);
+        add(exitButton);
+
+        // Back button (for transaction screens)
+        backButton = new JButton("Back to Main Menu");
+        backButton.setBounds(300, 520, 200, 40); // Below other buttons
+        backButton.addActionListener(this);
+        backButton.setIcon(new ImageIcon(buttonBackImage));
+        backButton.setHorizontalTextPosition(SwingConstants.CENTER);
+        backButton.setVerticalTextPosition(SwingConstants.CENTER);
+        backButton.setVisible(false); // Initially hidden
+        add(backButton);
+    }
+
+    /**
+     * Paints the background image and the ATM screen image.
+     * @param g The Graphics object.
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2d = (Graphics2D) g;
+
+        // Draw ATM background image
+        if (atmBackground != null) {
+            g2d.drawImage(atmBackground, 0, 0, AtmGui.WINDOW_WIDTH, AtmGui.WINDOW_HEIGHT, this);
+        } else {
+            g2d.setColor(Color.DARK_GRAY);
+            g2d.fillRect(0, 0, AtmGui.WINDOW_WIDTH, AtmGui.WINDOW_HEIGHT);
+        }
+
+        // Draw ATM screen image (behind the JTextArea)
+        if (atmScreenImage != null) {
+            g2d.drawImage(atmScreenImage, 145, 95, 510, 260, this); // Slightly larger to act as frame
+        }
+    }
+
+    /**
+     * Handles button clicks and input field 'Enter' presses, recording each in the trace.
+     * @param e The ActionEvent generated by a button click or JTextField 'Enter'.
+     */
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        String screenState = currentScreenState;
+        if (sessionRecorder != null) {
+            if (e.getSource() == inputField) {
+                sessionRecorder.record(screenState, SessionRecorder.KIND_INPUT, new String(inputField.getPassword()));
+            } else {
+                // Login and Confirm Deposit read the input field, so keep what was typed before the click
+                String typedText = inputField.isVisible() ? new String(inputField.getPassword()) : "";
+                sessionRecorder.record(screenState, SessionRecorder.KIND_CLICK, describeSource(e), typedText);
+            }
+        }
+        long timestampMillis = System.currentTimeMillis();
+        long start = System.nanoTime();
+        try {
+            handleAction(e);
+        } finally {
+            traceRecorder.record(timestampMillis, System.nanoTime() - start, describeSource(e), screenState);
+        }
+    }
+
+    /**
+     * Returns a trace label for the event's source.
+     * @param e The ActionEvent being recorded.
+     */
+    private String describeSource(ActionEvent e) {
+        if (e.getSource() == inputField) {
+            return "inputField"; // Never the action command, which holds the typed account number or PIN
+        }
+        if (e.getSource() instanceof AbstractButton) {
+            return ((AbstractButton) e.getSource()).getText();
+        }
+        return e.getSource().getClass().getSimpleName();
+    }
+
+    /**
+     * Dispatches a button click or input field 'Enter' press to the matching handler.
+     * @param e The ActionEvent generated by a button click or JTextField 'Enter'.
+     */
+    private void handleAction(ActionEvent e) {
+        // If the action comes from the input field (Enter key press) AND we are in login state
+        if (e.getSource() == inputField && currentScreenState.equals(STATE_LOGIN)) {
+            handleLogin();
+        } else if (e.getSource() == loginButton && currentScreenState.equals(STATE_LOGIN)) {
+            handleLogin(); // Also handle login button click
+        }
+        else if (e.getSource() == balanceButton) {
+            showBalance();
+        } else if (e.getSource() == withdrawButton) {
+            showWithdrawalOptions();
+        } else if (e.getSource() == depositButton) {
+            showDepositPrompt();
+        } else if (e.getSource() == transferButton) {
+            showTransferPrompt();
+        } else if (e.getSource() == exitButton) {
+            handleExit();
+        } else if (e.getSource() == backButton) {
+            currentScreenState = STATE_MAIN_MENU; // The updateScreen() below rebuilds the menu
+        }
+        // Handle specific withdrawal amounts if on withdrawal screen
+        else if (currentScreenState.equals(STATE_WITHDRAW) && e.getSource() instanceof JButton) {
+            JButton clickedButton = (JButton) e.getSource();
+            try {
+                // Check if it's a numeric amount button
+                if (clickedButton.getText().matches("\\$\\d+")) {
+                    double amount = Double.parseDouble(clickedButton.getText().replace("$", ""));
+                    performWithdrawal(amount);
+                } else if (clickedButton.getText().equals("Custom Amount")) {
+                    // Allow user to type custom amount
+                    screenDisplay.setText("Enter custom withdrawal amount (multiples of 20):");
+                    inputField.setVisible(true);
+                    inputField.setText("");
+                    inputField.requestFocusInWindow();
+                    // Custom amount will be processed when user types in inputField and presses Enter
+                }
+            } catch (NumberFormatException ex) {
+                // Not a withdrawal amount button, ignore or handle
+                screenDisplay.setText("Invalid amount format.");
+            }
+        }
+        // Handle custom withdrawal amount entered in inputField
+        else if (e.getSource() == inputField && currentScreenState.equals(STATE_WITHDRAW)) {
+            try {
+                double amount = Double.parseDouble(inputField.getText().trim());
+                performWithdrawal(amount);
+            } catch (NumberFormatException ex) {
+                screenDisplay.setText("Invalid amount. Please enter a number.");
+            }
+        }
+        // Handle specific deposit confirmation if on deposit screen
+        else if (currentScreenState.equals(STATE_DEPOSIT) && e.getSource() instanceof JButton) {
+            JButton clickedButton = (JButton) e.getSource();
+            if (clickedButton.getText().equals("Confirm Deposit")) {
+                performDeposit();
+            } else if (clickedButton.getText().equals("Cancel Deposit")) {
+                currentScreenState = STATE_MAIN_MENU; // The updateScreen() below rebuilds the menu
+            }
+        }
+        // Handle deposit amount entered in inputField
+        else if (e.getSource() == inputField && currentScreenState.equals(STATE_DEPOSIT)) {
+            performDeposit(); // Process deposit amount from input field
+        }
+        // Handle linked-account shortcut buttons on the transfer screen
+        else if (currentScreenState.equals(STATE_TRANSFER) && e.getSource() instanceof JButton) {
+            JButton clickedButton = (JButton) e.getSource();
+            if (clickedButton.getText().startsWith(LINKED_ACCOUNT_BUTTON_PREFIX)) {
+                tempDestinationAccount = Integer.parseInt(clickedButton.getText().substring(LINKED_ACCOUNT_BUTTON_PREFIX.length()));
+                transferStep = TRANSFER_STEP_AMOUNT;
+            }
+        }
+        // Handle destination account or amount entered in inputField
+        else if (e.getSource() == inputField && currentScreenState.equals(STATE_TRANSFER)) {
+            handleTransferInput();
+        }
+        updateScreen(); // Update screen after any action
+    }
+
+    /**
+     * Resets the login state to prompt for account number.
+     */
+    private void resetLoginState() {
+        loginStep = LOGIN_STEP_ACCOUNT_NUMBER;
+        tempAccountNumber = 0;
+        currentAccount = null;
+        inputField.setText("");
+        inputField.setEchoChar((char)0); // Ensure text is visible for account number
+    }
+
+    /**
+     * Updates the visibility of GUI components and the display text based on the current state.
+     */
+    private void updateScreen() {
+        // Hide all transaction buttons and back button by default
+        balanceButton.setVisible(false);
+        withdrawButton.setVisible(false);
+        depositButton.setVisible(false);
+        transferButton.setVisible(false);
+        exitButton.setVisible(false);
+        backButton.setVisible(false);
+        loginButton.setVisible(false);
+        inputField.setVisible(false);
+        inputField.setText(""); // Clear input field
+
+        // Remove old dynamic buttons (e.g., withdrawal amounts)
+        Component[] components = getComponents();
+        for (Component comp : components) {
+            if (comp instanceof JButton && comp != loginButton && comp != balanceButton &&
+                    comp != withdrawButton && comp != depositButton && comp != transferButton &&
+                    comp != exitButton && comp != backButton) {
+                remove(comp);
+            }
+        }
+        revalidate(); // Re-layout the container
+        repaint(); // Repaint to reflect changes
+
+        // Set visibility and text based on state
+        switch (currentScreenState) {
+            case STATE_LOGIN:
+                loginButton.setVisible(true);
+                inputField.setVisible(true);
+                inputField.requestFocusInWindow(); // Give focus to input field
+                if (loginStep.equals(LOGIN_STEP_ACCOUNT_NUMBER)) {
+                    screenDisplay.setText("Welcome!\nPlease enter your account number:");
+                    inputField.setToolTipText("Enter Account Number");
+                    inputField.setEchoChar((char)0); // Show characters
+                } else { // LOGIN_STEP_PIN
+                    screenDisplay.setText("Account: " + tempAccountNumber + "\nPlease enter your PIN:");
+                    inputField.setToolTipText("Enter PIN");
+                    inputField.setEchoChar('*'); // Hide characters for PIN
+                }
+                break;
+            case STATE_MAIN_MENU:
+                screenDisplay.setText("Authentication successful!\n\nATM Main Menu:\n1 - View my balance\n2 - Withdraw cash\n3 - Deposit funds\n4 - Transfer funds\n5 - Exit");
+                balanceButton.setVisible(true);
+                withdrawButton.setVisible(true);
+                depositButton.setVisible(true);
+                transferButton.setVisible(true);
+                exitButton.setVisible(true);
+                break;
+            case STATE_BALANCE:
+                screenDisplay.setText("Balance Information:\n- Available balance: $" + String.format("%,.2f", currentAccount.getAvailableBalance()) +
+                        "\n- Total balance:     $" + String.format("%,.2f", currentAccount.getTotalBalance()));
+                backButton.setVisible(true);
+                break;
+            case STATE_WITHDRAW:
+                screenDisplay.setText("Withdrawal Menu:\nChoose a withdrawal amount (multiples of 20):");
+                inputField.setVisible(true); // For custom amount
+                setupWithdrawalButtons();
+                backButton.setVisible(true);
+                break;
+            case STATE_DEPOSIT:
+                screenDisplay.setText("Please enter the deposit amount (e.g., 100.00 for $100.00, or 0 to cancel):");
+                inputField.setVisible(true);
+                setupDepositButtons(); // Setup confirm/cancel buttons
+                backButton.setVisible(true);
+                break;
+            case STATE_TRANSFER:
+                if (transferStep.equals(TRANSFER_STEP_DESTINATION)) {
+                    screenDisplay.setText("Transfer Menu:\nEnter the destination account number,\nor choose one of your linked accounts:");
+                    inputField.setVisible(true);
+                    inputField.requestFocusInWindow();
+                    setupLinkedAccountButtons();
+                } else if (transferStep.equals(TRANSFER_STEP_AMOUNT)) {
+                    screenDisplay.setText("Transfer to account " + tempDestinationAccount + "\nPlease enter the amount to transfer:");
+                    inputField.setVisible(true);
+                    inputField.requestFocusInWindow();
+                } // TRANSFER_STEP_COMPLETE keeps the result message on screen
+                backButton.setVisible(true);
+                break;
+            default:
+                screenDisplay.setText("An unexpected error occurred. Please restart.");
+                break;
+        }
+    }
+
+    /**
+     * Handles the login process.
+     */
+    private void handleLogin() {
+        try {
+            String input = new String(inputField.getPassword()).trim(); // Get password as String
+            if (input.isEmpty()) {
+                screenDisplay.setText("Input cannot be empty. Please enter a value.");
+                return;
+            }
+
+            if (loginStep.equals(LOGIN_STEP_ACCOUNT_NUMBER)) {
+                tempAccountNumber = Integer.parseInt(input);
+                loginStep = LOGIN_STEP_PIN; // Move to PIN step
+                inputField.setText(""); // Clear for PIN
+                inputField.setEchoChar('*'); // Hide characters for PIN
+                screenDisplay.setText("Account: " + tempAccountNumber + "\nPlease enter your PIN:");
+            } else if (loginStep.equals(LOGIN_STEP_PIN)) {
+                int pin = Integer.parseInt(input);
+                if (bankDatabase.authenticateUser(tempAccountNumber, pin)) {
+                    currentAccount = bankDatabase.getAccount(tempAccountNumber); // Get real account
+                    currentScreenState = STATE_MAIN_MENU;
+                    screenDisplay.setText("Authentication successful!");
+                    inputField.setText(""); // Clear field
+                } else {
+                    screenDisplay.setText("Invalid account number or PIN. Please try again.");
+                    resetLoginState(); // Reset to account number input
+                }
+            }
+        } catch (NumberFormatException ex) {
+            screenDisplay.setText("Invalid input. Please enter numbers only.");
+            inputField.setText("");
+            resetLoginState(); // Reset on invalid input
+        }
+    }
+
+    /**
+     * Shows the balance inquiry screen.
+     */
+    private void showBalance() {
+        if (currentAccount != null) {
+            currentScreenState = STATE_BALANCE;
+        } else {
+            screenDisplay.setText("Error: Not logged in. Please log in.");
+            currentScreenState = STATE_LOGIN;
+            resetLoginState();
+        }
+    }
+
+    /**
+     * Sets up buttons for fixed withdrawal amounts.
+     */
+    private void setupWithdrawalButtons() {
+        int[] amounts = {20, 40, 60, 100, 200};
+        int xOffset = 50;
+        int yOffset = 400;
+        int buttonWidth = 100;
+        int buttonHeight = 50;
+        int spacing = 10;
+
+        for (int i = 0; i < amounts.length; i++) {
+            JButton amountButton = new JButton("$" + amounts[i]);
+            amountButton.setBounds(xOffset + (i * (buttonWidth + spacing)), yOffset, buttonWidth, buttonHeight);
+            amountButton.addActionListener(this);
+            amountButton.setIcon(new ImageIcon(buttonGenericImage));
+            amountButton.setHorizontalTextPosition(SwingConstants.CENTER);
+            amountButton.setVerticalTextPosition(SwingConstants.CENTER);
+            add(amountButton);
+        }
+        // Custom amount button
+        JButton customAmountButton = new JButton("Custom Amount");
+        customAmountButton.setBounds(xOffset + (amounts.length * (buttonWidth + spacing)), yOffset, 150, buttonHeight);
+        customAmountButton.addActionListener(this);
+        customAmountButton.setIcon(new ImageIcon(buttonGenericImage));
+        customAmountButton.setHorizontalTextPosition(SwingConstants.CENTER);
+        customAmountButton.setVerticalTextPosition(SwingConstants.CENTER);
+        add(customAmountButton);
+    }
+
+    /**
+     * Shows the withdrawal options screen.
+     */
+    private void showWithdrawalOptions() {
+        currentScreenState = STATE_WITHDRAW;
+    }
+
+    /**
+     * Performs the withdrawal transaction.
+     * @param amount The amount to withdraw.
+     */
+    private void performWithdrawal(double amount) {
+        if (currentAccount == null) {
+            screenDisplay.setText("Error: Not logged in. Please log in.");
+            currentScreenState = STATE_LOGIN;
+            resetLoginState();
+            return;
+        }
+
+        if (amount % 20 != 0 || amount <= 0) {
+            screenDisplay.setText("Withdrawal amounts must be positive multiples of $20.");
+            return;
+        }
+
+        if (!currentAccount.tryDebit(amount)) { // Check and debit atomically, transfers may run concurrently
+            screenDisplay.setText("Insufficient funds in your account. Please choose a smaller amount.");
+        } else if (cashDispenser.isSufficientCashAvailable(amount)) {
+            cashDispenser.dispenseCash(amount);
+            screenDisplay.setText("Your cash of $" + String.format("%,.2f", amount) + " has been dispensed.\nPlease take your cash now.");
+        } else {
+            currentAccount.credit(amount); // Refund, the ATM cannot dispense it
+            screenDisplay.setText("Insufficient cash available in the ATM. Please choose a smaller amount.");
+        }
+        // After transaction, go back to main menu after a short delay or user action
+        scheduleReturnToMainMenu();
+    }
+
+    /**
+     * Sets up buttons for deposit confirmation/cancellation.
+     */
+    private void setupDepositButtons() {
+        JButton confirmButton = new JButton("Confirm Deposit");
+        confirmButton.setBounds(250, 400, 150, 50);
+        confirmButton.addActionListener(this);
+        confirmButton.setIcon(new ImageIcon(buttonDepositImage));
+        confirmButton.setHorizontalTextPosition(SwingConstants.CENTER);
+        confirmButton.setVerticalTextPosition(SwingConstants.CENTER);
+        add(confirmButton);
+
+        JButton cancelButton = new JButton("Cancel Deposit");
+        cancelButton.setBounds(410, 400, 150, 50);
+        cancelButton.addActionListener(this);
+        cancelButton.setIcon(new ImageIcon(buttonExitImage));
+        cancelButton.setHorizontalTextPosition(SwingConstants.CENTER);
+        cancelButton.setVerticalTextPosition(SwingConstants.CENTER);
+        add(cancelButton);
+    }
+
+    /**
+     * Shows the deposit prompt screen.
+     */
+    private void showDepositPrompt() {
+        currentScreenState = STATE_DEPOSIT;
+    }
+
+    /**
+     * Performs the deposit transaction.
+     */
+    private void performDeposit() {
+        if (currentAccount == null) {
+            screenDisplay.setText("Error: Not logged in. Please log in.");
+            currentScreenState = STATE_LOGIN;
+            resetLoginState();
+            return;
+        }
+
+        try {
+            double amount = Double.parseDouble(inputField.getText());
+            if (amount <= 0) {
+                screenDisplay.setText("Deposit amount must be positive.");
+                return;
+            }
+            // For simplicity, we assume cash is always inserted correctly
+            if (depositSlot.isEnvelopeReceived()) {
+                currentAccount.credit(amount);
+                screenDisplay.setText("Your deposit of $" + String.format("%,.2f", amount) + " has been credited to your account.");
+            } else {
+                // This branch is currently unreachable due to isEnvelopeReceived always returning true
+                screenDisplay.setText("You did not insert an envelope, so your transaction has been canceled.");
+            }
+        } catch (NumberFormatException ex) {
+            screenDisplay.setText("Invalid amount. Please enter a number.");
+        }
+        // After transaction, go back to main menu after a short delay or user action
+        scheduleReturnToMainMenu();
+    }
+
+    /**
+     * Sets up shortcut buttons for the customer's own linked accounts.
+     */
+    private void setupLinkedAccountButtons() {
+        List<Integer> linked = bankDatabase.getLinkedAccounts(currentAccount.getAccountNumber());
+        int xOffset = 150;
+        int yOffset = 400;
+        int buttonWidth = 150;
+        int buttonHeight = 50;
+        int spacing = 10;
+
+        for (int i = 0; i < linked.size(); i++) {
+            JButton linkedButton = new JButton(LINKED_ACCOUNT_BUTTON_PREFIX + linked.get(i));
+            linkedButton.setBounds(xOffset + (i * (buttonWidth + spacing)), yOffset, buttonWidth, buttonHeight);
+            linkedButton.addActionListener(this);
+            linkedButton.setIcon(new ImageIcon(buttonGenericImage));
+            linkedButton.setHorizontalTextPosition(SwingConstants.CENTER);
+            linkedButton.setVerticalTextPosition(SwingConstants.CENTER);
+            add(linkedButton);
+        }
+    }
+
+    /**
+     * Shows the transfer prompt screen.
+     */
+    private void showTransferPrompt() {
+        if (currentAccount == null) {
+            screenDisplay.setText("Error: Not logged in. Please log in.");
+            currentScreenState = STATE_LOGIN;
+            resetLoginState();
+            return;
+        }
+        transferStep = TRANSFER_STEP_DESTINATION;
+        tempDestinationAccount = 0;
+        currentScreenState = STATE_TRANSFER;
+    }
+
+    /**
+     * Handles input on the transfer screen: first the destination account, then the amount.
+     */
+    private void handleTransferInput() {
+        try {
+            String input = new String(inputField.getPassword()).trim();
+            if (transferStep.equals(TRANSFER_STEP_DESTINATION)) {
+                tempDestinationAccount = Integer.parseInt(input);
+                if (bankDatabase.getAccount(tempDestinationAccount) == null) {
+                    screenDisplay.setText("Destination account " + tempDestinationAccount + " does not exist.");
+                    transferStep = TRANSFER_STEP_COMPLETE;
+                    scheduleReturnToMainMenu();
+                    return;
+                }
+                transferStep = TRANSFER_STEP_AMOUNT;
+            } else if (transferStep.equals(TRANSFER_STEP_AMOUNT)) {
+                performTransfer(Double.parseDouble(input));
+            }
+        } catch (NumberFormatException ex) {
+            screenDisplay.setText("Invalid input. Please enter a number.");
+            transferStep = TRANSFER_STEP_COMPLETE;
+            scheduleReturnToMainMenu();
+        }
+    }
+
+    /**
+     * Performs the transfer transaction from the current account.
+     * @param amount The amount to transfer.
+     */
+    private void performTransfer(double amount) {
+        if (currentAccount == null) {
+            screenDisplay.setText("Error: Not logged in. Please log in.");
+            currentScreenState = STATE_LOGIN;
+            resetLoginState();
+            return;
+        }
+
+        TransferResult result = bankDatabase.transfer(currentAccount.getAccountNumber(), tempDestinationAccount, amount);
+        switch (result) {
+            case SUCCESS:
+                screenDisplay.setText("$" + String.format("%,.2f", amount) + " has been transferred to account " + tempDestinationAccount + ".");
+                break;
+            case INVALID_AMOUNT:
+                screenDisplay.setText("Transfer amount must be positive.");
+                break;
+            case SAME_ACCOUNT:
+                screenDisplay.setText("Cannot transfer to the same account.");
+                break;
+            case UNKNOWN_ACCOUNT:
+                screenDisplay.setText("Destination account " + tempDestinationAccount + " does not exist.");
+                break;
+            case INSUFFICIENT_FUNDS:
+                screenDisplay.setText("Insufficient funds in your account. Please choose a smaller amount.");
+                break;
+        }
+        transferStep = TRANSFER_STEP_COMPLETE;
+        // After transaction, go back to main menu after a short delay or user action
+        scheduleReturnToMainMenu();
+    }
+
+    /**
+     * Handles exiting the ATM.
+     */
+    private void handleExit() {
+        currentAccount = null; // Log out
+        currentScreenState = STATE_LOGIN;
+        resetLoginState(); // Reset login state for next user
+        screenDisplay.setText("Thank you for using the ATM. Goodbye!");
+        // Optionally, dispose the frame: SwingUtilities.getWindowAncestor(this).dispose();
+    }
+
+    /**
+     * Returns to the main menu.
+     */
+    private void showMainMenu() {
+        currentScreenState = STATE_MAIN_MENU;
+        updateScreen();
+    }
+
+    /**
+     * Returns to the main menu after a transaction result has been shown for a few seconds.
+     */
+    private void scheduleReturnToMainMenu() {
+        if (!autoReturnEnabled) {
+            return;
+        }
+        Timer timer = new Timer(3000, e -> {
+            if (sessionRecorder != null) {
+                sessionRecorder.record(currentScreenState, SessionRecorder.KIND_TIMER, "");
+            }
+            showMainMenu();
+        });
+        timer.setRepeats(false);
+        timer.start();
+    }
+
+    // --- Session record and replay support ---
+
+    void setSessionRecorder(SessionRecorder sessionRecorder) {
+        this.sessionRecorder = sessionRecorder;
+    }
+
+    void setAutoReturnEnabled(boolean autoReturnEnabled) {
+        this.autoReturnEnabled = autoReturnEnabled;
+    }
+
+    String getCurrentScreenState() {
+        return currentScreenState;
+    }
+
+    static boolean isScreenState(String state) {
+        return STATE_LOGIN.equals(state) || STATE_MAIN_MENU.equals(state) || STATE_BALANCE.equals(state)
+                || STATE_WITHDRAW.equals(state) || STATE_DEPOSIT.equals(state) || STATE_TRANSFER.equals(state);
+    }
+
+    /**
+     * Restores the input field's text, then clicks the visible button with the given text.
+     * Must be called on the EDT.
+     * @param text The button text, e.g. "Withdraw" or "$20".
+     * @param typedText The input field contents at the time of the recorded click.
+     */
+    void replayClick(String text, String typedText) {
+        for (Component comp : getComponents()) {
+            if (comp instanceof JButton && comp.isVisible() && ((JButton) comp).getText().equals(text)) {
+                if (inputField.isVisible()) {
+                    inputField.setText(typedText);
+                }
+                ((JButton) comp).doClick(0);
+                return;
+            }
+        }
+        throw new IllegalStateException("No visible button \"" + text + "\" on screen " + currentScreenState);
+    }
+
+    /**
+     * Types the value into the input field and presses Enter. Must be called on the EDT.
+     * @param value The text to type.
+     */
+    void replayInput(String value) {
+        if (!inputField.isVisible()) {
+            throw new IllegalStateException("Input field is hidden on screen " + currentScreenState);
+        }
+        inputField.setText(value);
+        inputField.postActionEvent();
+    }
+
+    /**
+     * Fires the automatic return to the main menu. Must be called on the EDT.
+     */
+    void replayTimer() {
+        showMainMenu();
+    }
+}
+
+/**
+ * One entry in a recorded session log.
+ */
+class SessionEvent {
+    final long offsetMillis; // Time since the first event of the session
+    final String screenState; // Screen the event arrived on
+    final String kind;
+    final String value;
+    final String typedText; // Input field contents when a button was clicked, e.g. a PIN before Login
+
+    SessionEvent(long offsetMillis, String screenState, String kind, String value, String typedText) {
+        this.offsetMillis = offsetMillis;
+        this.screenState = screenState;
+        this.kind = kind;
+        this.value = value;
+        this.typedText = typedText;
+    }
+}
+
+/**
+ * Captures a user session as a compact, tab-separated event log that AtmReplay can play back.
+ * Each line holds the offset from the first event, the screen, the event kind, its value and,
+ * for clicks, the text in the input field, since Login and Confirm Deposit read it.
+ * Typed values, PINs included, are stored verbatim, so only record sessions on test accounts.
+ */
+class SessionRecorder {
+    static final String HEADER = "# ATM session v2";
+    static final String KIND_CLICK = "CLICK"; // Button press, value is the button text
+    static final String KIND_INPUT = "INPUT"; // Enter in the input field, value is the typed text
+    static final String KIND_TIMER = "TIMER"; // Automatic return to the main menu after a result
+
+    private final List<SessionEvent> events = new ArrayList<>();
+    private long startNanos;
+
+    public void record(String screenState, String kind, String value) {
+        record(screenState, kind, value, "");
+    }
+
+    public synchronized void record(String screenState, String kind, String value, String typedText) {
+        long now = System.nanoTime();
+        if (events.isEmpty()) {
+            startNanos = now;
+        }
+        events.add(new SessionEvent((now - startNanos) / 1_000_000, screenState, kind, value, typedText));
+    }
+
+    public synchronized void saveTo(Path file) {
+        try (Writer out = Files.newBufferedWriter(file)) {
+            out.write(HEADER + "\n");
+            for (SessionEvent event : events) {
+                out.write(event.offsetMillis + "\t" + event.screenState + "\t" + event.kind + "\t" + event.value
+                        + "\t" + event.typedText + "\n");
+            }
+            System.err.println("Session of " + events.size() + " events written to " + file.toAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("Error writing session to " + file + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads a session log. Version 1 logs, which have no typed-text column, are still accepted.
+     * @throws IOException if the file cannot be read or a line is malformed.
+     */
+    public static List<SessionEvent> load(Path file) throws IOException {
+        List<SessionEvent> loaded = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(file)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t", 5);
+                if (fields.length < 4) {
+                    throw new IOException("Malformed session line " + lineNumber + ": " + line);
+                }
+                long offsetMillis;
+                try {
+                    offsetMillis = Long.parseLong(fields[0]);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Bad offset on session line " + lineNumber + ": " + fields[0]);
+                }
+                if (!AtmPanel.isScreenState(fields[1])) {
+                    throw new IOException("Unknown screen on session line " + lineNumber + ": " + fields[1]);
+                }
+                if (!fields[2].equals(KIND_CLICK) && !fields[2].equals(KIND_INPUT) && !fields[2].equals(KIND_TIMER)) {
+                    throw new IOException("Unknown event kind on session line " + lineNumber + ": " + fields[2]);
+                }
+                String typedText = fields.length == 5 ? fields[4] : "";
+                loaded.add(new SessionEvent(offsetMillis, fields[1], fields[2], fields[3], typedText));
+            }
+        }
+        return loaded;
+    }
+}
+
+/**
+ * Counts repaint requests so replay runs can report them even without a display.
+ */
+class CountingRepaintManager extends RepaintManager {
+    private final AtomicLong repaintRequests = new AtomicLong();
+
+    @Override
+    public void addDirtyRegion(JComponent c, int x, int y, int w, int h) {
+        repaintRequests.incrementAndGet();
+        super.addDirtyRegion(c, x, y, w, h);
+    }
+
+    public long getRepaintRequests() {
+        return repaintRequests.get();
+    }
+}
+
+/**
+ * Latency, allocation and repaint totals for the events handled on one screen.
+ */
+class ScreenMetrics {
+    int events;
+    final List<Long> latenciesNanos = new ArrayList<>();
+    long allocatedBytes;
+    long repaintRequests;
+
+    /**
+     * Median rather than mean, so a single GC pause does not fail a run.
+     */
+    double medianLatencyMicros() {
+        if (latenciesNanos.isEmpty()) {
+            return 0;
+        }
+        List<Long> sorted = new ArrayList<>(latenciesNanos);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2) / 1_000.0;
+    }
+
+    double maxLatencyMicros() {
+        return latenciesNanos.isEmpty() ? 0 : Collections.max(latenciesNanos) / 1_000.0;
+    }
+
+    double allocatedBytesPerEvent() {
+        return events == 0 ? 0 : (double) allocatedBytes / events;
+    }
+
+    double repaintsPerEvent() {
+        return events == 0 ? 0 : (double) repaintRequests / events;
+    }
+}
+
+/**
+ * Replays a recorded session into a fresh AtmPanel and reports per-screen performance.
+ * Runs headless with no network: images are replaced by placeholders and the automatic
+ * return to the main menu is driven by the log instead of a timer, so every run is
+ * deterministic. Exits with 1 on a regression against the baseline, 2 on a divergence and
+ * 3 on a malformed log, baseline or option.
+ *
+ * Usage: java -Djava.awt.headless=true AtmReplay session.log [--max-speed] [--warmup N]
+ *        [--iterations N] [--baseline file] [--write-baseline file] [--tolerance 0.25]
+ *        [--gate-latency] [--latency-floor 50]
+ */
+class AtmReplay {
+    private static final int EXIT_REGRESSION = 1;
+    private static final int EXIT_DIVERGED = 2;
+    private static final int EXIT_BAD_INPUT = 3;
+    // Some JVM runs settle on a JIT mode that allocates about 4 KB more per event; smaller increases are noise
+    private static final double ALLOCATION_FLOOR_BYTES = 4096;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: AtmReplay session.log [--max-speed] [--warmup N] [--iterations N]"
+                    + " [--baseline file] [--write-baseline file] [--tolerance 0.25] [--gate-latency] [--latency-floor 50]");
+            System.exit(EXIT_BAD_INPUT);
+        }
+        boolean maxSpeed = false;
+        Integer warmup = null;
+        Integer iterations = null;
+        Path baselineFile = null;
+        Path writeBaselineFile = null;
+        double tolerance = 0.25;
+        boolean gateLatency = false; // Wall-clock latency is too noisy on shared CI machines to gate by default
+        double latencyFloorMicros = 50; // Latency increases below this are ignored as noise
+        List<SessionEvent> events;
+        Properties baseline = null;
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--max-speed": maxSpeed = true; break;
+                    case "--warmup": warmup = parseCount(args[++i], "--warmup", 0); break;
+                    case "--iterations": iterations = parseCount(args[++i], "--iterations", 1); break;
+                    case "--baseline": baselineFile = Paths.get(args[++i]); break;
+                    case "--write-baseline": writeBaselineFile = Paths.get(args[++i]); break;
+                    case "--tolerance": tolerance = Double.parseDouble(args[++i]); break;
+                    case "--gate-latency": gateLatency = true; break;
+                    case "--latency-floor": latencyFloorMicros = Double.parseDouble(args[++i]); break;
+                    default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            events = SessionRecorder.load(Paths.get(args[0]));
+            if (baselineFile != null) {
+                baseline = loadBaseline(baselineFile);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Invalid input: " + e);
+            System.exit(EXIT_BAD_INPUT);
+            return;
+        }
+        if (warmup == null) {
+            // JIT warm-up only pays off at max speed; at original timings every run takes as long as the session
+            warmup = maxSpeed ? 20 : 0;
+        }
+        if (iterations == null) {
+            iterations = maxSpeed ? 30 : 1;
+        }
+
+        ImageLoader.setOffline(true);
+        CountingRepaintManager repaintManager = new CountingRepaintManager();
+        EventQueue.invokeAndWait(() -> RepaintManager.setCurrentManager(repaintManager));
+
+        Map<String, ScreenMetrics> metrics = new TreeMap<>();
+        try {
+            for (int i = 0; i < warmup; i++) {
+                replay(events, maxSpeed, repaintManager, new TreeMap<>());
+            }
+            for (int i = 0; i < iterations; i++) {
+                replay(events, maxSpeed, repaintManager, metrics);
+            }
+        } catch (IllegalStateException e) {
+            System.err.println("Replay diverged: " + e.getMessage());
+            System.exit(EXIT_DIVERGED);
+        }
+
+        report(metrics, System.out);
+        int exitCode = 0;
+        try {
+            if (baseline != null && !compareWithBaseline(metrics, baseline, tolerance, gateLatency, latencyFloorMicros, System.out)) {
+                exitCode = EXIT_REGRESSION;
+            }
+            if (writeBaselineFile != null) {
+                writeBaseline(metrics, writeBaselineFile);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Invalid baseline: " + e);
+            exitCode = EXIT_BAD_INPUT;
+        }
+        System.exit(exitCode); // The EDT would otherwise keep the JVM alive
+    }
+
+    /**
+     * Plays the events into a new panel, adding each event's cost to the metrics of its screen.
+     * @throws IllegalStateException if the panel is not on the screen the log expects.
+     */
+    static void replay(List<SessionEvent> events, boolean maxSpeed, CountingRepaintManager repaintManager,
+                       Map<String, ScreenMetrics> metrics) throws InterruptedException {
+        AtmPanel[] panel = new AtmPanel[1];
+        runOnEdt(() -> {
+            panel[0] = new AtmPanel(new InteractionTraceRecorder(1));
+            panel[0].setAutoReturnEnabled(false);
+            panel[0].setSize(AtmGui.WINDOW_WIDTH, AtmGui.WINDOW_HEIGHT); // Same size as in the AtmGui frame
+        });
+        // Off-screen stand-in for the window, so every event pays for layout and painting as on a real display
+        BufferedImage canvas = new BufferedImage(AtmGui.WINDOW_WIDTH, AtmGui.WINDOW_HEIGHT, BufferedImage.TYPE_INT_RGB);
+
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < events.size(); i++) {
+            SessionEvent event = events.get(i);
+            if (!maxSpeed) {
+                long waitMillis = event.offsetMillis - (System.nanoTime() - startNanos) / 1_000_000;
+                if (waitMillis > 0) {
+                    Thread.sleep(waitMillis);
+                }
+            }
+            int index = i;
+            runOnEdt(() -> {
+                if (!event.screenState.equals(panel[0].getCurrentScreenState())) {
+                    throw new IllegalStateException("event " + index + " expected screen " + event.screenState
+                            + " but was " + panel[0].getCurrentScreenState());
+                }
+                long allocatedBefore = allocatedBytes();
+                long repaintsBefore = repaintManager.getRepaintRequests();
+                long start = System.nanoTime();
+                dispatch(panel[0], event);
+                renderFrame(panel[0], canvas);
+                long latencyNanos = System.nanoTime() - start;
+
+                ScreenMetrics screen = metrics.computeIfAbsent(event.screenState, k -> new ScreenMetrics());
+                screen.events++;
+                screen.latenciesNanos.add(latencyNanos);
+                screen.allocatedBytes += allocatedBytes() - allocatedBefore;
+                screen.repaintRequests += repaintManager.getRepaintRequests() - repaintsBefore;
+            });
+        }
+    }
+
+    /**
+     * Lays out and paints the whole panel, as the RepaintManager would after an event on screen.
+     */
+    private static void renderFrame(AtmPanel panel, BufferedImage canvas) {
+        panel.validate();
+        Graphics2D g = canvas.createGraphics();
+        try {
+            panel.paint(g);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    private static int parseCount(String value, String option, int minimum) {
+        int count = Integer.parseInt(value);
+        if (count < minimum) {
+            throw new IllegalArgumentException(option + " must be at least " + minimum + ", was " + count);
+        }
+        return count;
+    }
+
+    private static void dispatch(AtmPanel panel, SessionEvent event) {
+        switch (event.kind) {
+            case SessionRecorder.KIND_CLICK:
+                panel.replayClick(event.value, event.typedText);
+                break;
+            case SessionRecorder.KIND_INPUT:
+                panel.replayInput(event.value);
+                break;
+            case SessionRecorder.KIND_TIMER:
+                panel.replayTimer();
+                break;
+            default:
+                throw new IllegalStateException("Unknown event kind " + event.kind);
+        }
+    }
+
+    private static void runOnEdt(Runnable task) throws InterruptedException {
+        try {
+            EventQueue.invokeAndWait(task);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Bytes allocated so far by the calling thread, or 0 if the JVM cannot report it.
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    static void report(Map<String, ScreenMetrics> metrics, PrintStream out) {
+        out.println(String.format("%-10s %7s %16s %13s %14s %12s",
+                "SCREEN", "EVENTS", "MEDIAN LAT (us)", "MAX LAT (us)", "ALLOC/EVENT", "REPAINTS/EV"));
+        for (Map.Entry<String, ScreenMetrics> entry : metrics.entrySet()) {
+            ScreenMetrics m = entry.getValue();
+            out.println(String.format("%-10s %7d %16.1f %13.1f %14.0f %12.1f", entry.getKey(), m.events,
+                    m.medianLatencyMicros(), m.maxLatencyMicros(), m.allocatedBytesPerEvent(), m.repaintsPerEvent()));
+        }
+    }
+
+    static Properties loadBaseline(Path file) throws IOException {
+        Properties baseline = new Properties();
+        try (Reader in = Files.newBufferedReader(file)) {
+            baseline.load(in);
+        }
+        return baseline;
+    }
+
+    static void writeBaseline(Map<String, ScreenMetrics> metrics, Path file) throws IOException {
+        Properties baseline = new Properties();
+        for (Map.Entry<String, ScreenMetrics> entry : metrics.entrySet()) {
+            ScreenMetrics m = entry.getValue();
+            baseline.setProperty(entry.getKey() + ".medianLatencyMicros", String.valueOf(m.medianLatencyMicros()));
+            baseline.setProperty(entry.getKey() + ".allocatedBytesPerEvent", String.valueOf(m.allocatedBytesPerEvent()));
+            baseline.setProperty(entry.getKey() + ".repaintsPerEvent", String.valueOf(m.repaintsPerEvent()));
+        }
+        try (Writer out = Files.newBufferedWriter(file)) {
+            baseline.store(out, "AtmReplay baseline");
+        }
+    }
+
+    /**
+     * Prints every metric that is worse than the baseline by more than the tolerance, and every
+     * baseline screen the run never reached. Repaint counts are deterministic, so any increase
+     * is a regression. Allocation increases under ALLOCATION_FLOOR_BYTES per event are ignored.
+     * Latency is only compared when gateLatency is set.
+     * @return true if nothing regressed.
+     * @throws IllegalArgumentException if the baseline is missing a value or has a malformed one.
+     */
+    static boolean compareWithBaseline(Map<String, ScreenMetrics> metrics, Properties baseline,
+                                       double tolerance, boolean gateLatency, double latencyFloorMicros,
+                                       PrintStream out) {
+        boolean passed = true;
+        List<String> keys = new ArrayList<>(baseline.stringPropertyNames());
+        Collections.sort(keys);
+        for (String key : keys) {
+            if (!key.endsWith(".medianLatencyMicros")) {
+                continue;
+            }
+            String screen = key.substring(0, key.length() - ".medianLatencyMicros".length());
+            if (!metrics.containsKey(screen)) {
+                out.println("MISSING    " + screen + " is in the baseline but was never reached");
+                passed = false;
+            }
+        }
+        for (Map.Entry<String, ScreenMetrics> entry : metrics.entrySet()) {
+            String screen = entry.getKey();
+            ScreenMetrics m = entry.getValue();
+            if (baseline.getProperty(screen + ".medianLatencyMicros") == null) {
+                out.println("NEW        " + screen + " has no baseline");
+                continue;
+            }
+            double latency = baselineValue(baseline, screen + ".medianLatencyMicros");
+            double allocated = baselineValue(baseline, screen + ".allocatedBytesPerEvent");
+            double repaints = baselineValue(baseline, screen + ".repaintsPerEvent");
+
+            double median = m.medianLatencyMicros();
+            if (gateLatency && median > latency * (1 + tolerance) && median - latency > latencyFloorMicros) {
+                out.println(String.format("REGRESSION %s median latency %.1f us > baseline %.1f us", screen, median, latency));
+                passed = false;
+            }
+            if (m.allocatedBytesPerEvent() > allocated * (1 + tolerance)
+                    && m.allocatedBytesPerEvent() - allocated > ALLOCATION_FLOOR_BYTES) {
+                out.println(String.format("REGRESSION %s allocation %.0f B/event > baseline %.0f B/event", screen, m.allocatedBytesPerEvent(), allocated));
+                passed = false;
+            }
+            if (m.repaintsPerEvent() > repaints + 1e-9) {
+                out.println(String.format("REGRESSION %s repaints %.1f/event > baseline %.1f/event", screen, m.repaintsPerEvent(), repaints));
+                passed = false;
+            }
+        }
+        out.println(passed ? "PASS: no regressions against baseline" : "FAIL: performance regressions detected");
+        return passed;
+    }
+
+    private static double baselineValue(Properties baseline, String key) {
+        String value = baseline.getProperty(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Baseline has no value for " + key);
+        }
+        return Double.parseDouble(value);
+    }
+}
+
+/**
+ * Stress check for concurrent transfers. Many threads move money between overlapping
+ * accounts, including the hot merchant account, then the check verifies that nothing
+ * deadlocked, no account went negative and the total balance is unchanged.
+ * Exits with 1 on failure.
+ *
+ * Usage: java TransferStressCheck [threads] [transfersPerThread]
+ */
+class TransferStressCheck {
+    private static final int[] ACCOUNTS = {12345, 12346, 98765, 55555};
+    private static final long TIMEOUT_SECONDS = 120;
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int transfersPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+
+        BankDatabase bankDatabase = new BankDatabase();
+        double totalBefore = totalBalance(bankDatabase);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int seed = t;
+            pool.execute(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < transfersPerThread; i++) {
+                    int from = ACCOUNTS[random.nextInt(ACCOUNTS.length)];
+                    // Half of all transfers pay the hot merchant account
+                    int to = random.nextBoolean() ? 55555 : ACCOUNTS[random.nextInt(ACCOUNTS.length)];
+                    bankDatabase.transfer(from, to, 1 + random.nextInt(50));
+                }
+            });
+        }
+        pool.shutdown();
+        if (!pool.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            System.err.println("FAIL: transfers did not finish within " + TIMEOUT_SECONDS + " s, possible deadlock");
+            System.exit(1);
+        }
+
+        boolean passed = true;
+        for (int accountNumber : ACCOUNTS) {
+            if (bankDatabase.getAccount(accountNumber).getAvailableBalance() < 0) {
+                System.err.println("FAIL: account " + accountNumber + " was overdrawn");
+                passed = false;
+            }
+        }
+        double totalAfter = totalBalance(bankDatabase);
+        if (Math.abs(totalAfter - totalBefore) > 1e-6) {
+            System.err.println("FAIL: total balance changed from " + totalBefore + " to " + totalAfter);
+            passed = false;
+        }
+        System.out.println((passed ? "PASS" : "FAIL") + ": " + threads + " threads x " + transfersPerThread
+                + " transfers, total balance " + String.format("%,.2f", totalAfter));
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static double totalBalance(BankDatabase bankDatabase) {
+        double total = 0;
+        for (int accountNumber : ACCOUNTS) {
+            total += bankDatabase.getAccount(accountNumber).getTotalBalance();
+        }
+        return total;
+    }
+}